@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Starts many jobs concurrently on a running node and reports how many job starts were in flight at the same time,
+# along with how long the starts waited for a database connection.
+# Run it once against a node started with spring.threads.virtual.enabled=true and once with false to compare.
+#
+# Usage : load-test/in-flight-starts.sh [job count] [base url]
+# Requires curl and jq.
+
+set -euo pipefail
+
+JOB_COUNT="${1:-400}"
+BASE_URL="${2:-http://localhost:8080/redis-lock-example}"
+WORK_DIR="$(mktemp -d)"
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+metric() {
+  curl -s "$BASE_URL/actuator/metrics/$1" \
+    | jq -r --arg statistic "$2" '.measurements[] | select(.statistic == $statistic) | .value'
+}
+
+echo "creating $JOB_COUNT jobs"
+for _ in $(seq 1 "$JOB_COUNT"); do
+  curl -s --fail --request POST "$BASE_URL/jobs?name=LOAD_TEST&chunk_count=1"
+  echo
+done > "$WORK_DIR/job_ids.txt"
+
+curl -s --fail --request DELETE "$BASE_URL/actuator/locks" > /dev/null
+
+echo "starting $JOB_COUNT jobs concurrently"
+start_time=$(date +%s.%N)
+xargs -P "$JOB_COUNT" -I {} \
+  curl -s -o /dev/null -w '%{http_code}\n' --request POST "$BASE_URL/jobs/{}/start" \
+  < "$WORK_DIR/job_ids.txt" > "$WORK_DIR/status_codes.txt" &
+starts_pid=$!
+
+max_pending_connections=0
+while kill -0 "$starts_pid" 2> /dev/null; do
+  pending_connections=$(metric hikaricp.connections.pending VALUE)
+  max_pending_connections=$(jq -n "[$max_pending_connections, ${pending_connections:-0}] | max")
+  sleep 0.5
+done
+wait "$starts_pid"
+end_time=$(date +%s.%N)
+
+echo
+echo "job starts                   : $JOB_COUNT"
+echo "peak in-flight starts        : $(curl -s "$BASE_URL/actuator/locks" | jq '.peakInFlightStarts')"
+echo "max pending connections      : $max_pending_connections"
+echo "max connection acquire (s)   : $(metric hikaricp.connections.acquire MAX)"
+echo "elapsed (s)                  : $(jq -n "$end_time - $start_time")"
+echo "responses by status code     :"
+sort "$WORK_DIR/status_codes.txt" | uniq -c
@@ -2,8 +2,10 @@ package com.jonathanfoucher.redislockexample;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RedisLockExampleApplication {
     static void main(String[] args) {
         SpringApplication.run(RedisLockExampleApplication.class, args);
@@ -0,0 +1,15 @@
+package com.jonathanfoucher.redislockexample.configs;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class JobConfig {
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService jobDispatchExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
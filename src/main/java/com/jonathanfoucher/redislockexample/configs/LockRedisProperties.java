@@ -0,0 +1,15 @@
+package com.jonathanfoucher.redislockexample.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties("redis-lock-example.redis")
+public class LockRedisProperties {
+    private Duration reconnectDelayMin = Duration.ofMillis(100);
+    private Duration reconnectDelayMax = Duration.ofSeconds(5);
+}
@@ -1,15 +1,27 @@
 package com.jonathanfoucher.redislockexample.configs;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.resource.Delay;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.integration.redis.util.RedisLockRegistry;
-import org.springframework.integration.support.locks.ExpirableLockRegistry;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Tunes the auto-configured Lettuce client for the lock registry. The connection itself, along with the command
+ * and connect timeouts and the pooling, is configured with the standard {@code spring.data.redis} properties.
+ */
 @Configuration
+@EnableConfigurationProperties(LockRedisProperties.class)
 public class RedisConfig {
     @Value("${redis-lock-example.lock-registry-key}")
     private String lockRegistryKey;
@@ -17,11 +29,36 @@ public class RedisConfig {
     private int releaseTimeDuration;
 
     @Bean
-    public ExpirableLockRegistry lockRegistry(RedisConnectionFactory redisConnectionFactory) {
+    public RedisLockRegistry lockRegistry(RedisConnectionFactory redisConnectionFactory) {
         return new RedisLockRegistry(
                 redisConnectionFactory,
                 lockRegistryKey,
                 Duration.ofSeconds(releaseTimeDuration).toMillis()
         );
     }
+
+    @Bean
+    public LettuceClientOptionsBuilderCustomizer lockRedisClientOptionsCustomizer(RedisProperties redisProperties) {
+        SocketOptions.Builder socketOptions = SocketOptions.builder()
+                .keepAlive(true);
+        if (redisProperties.getConnectTimeout() != null) {
+            socketOptions.connectTimeout(redisProperties.getConnectTimeout());
+        }
+
+        // commands issued while disconnected fail fast instead of being buffered until the reconnection
+        return builder -> builder.socketOptions(socketOptions.build())
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .autoReconnect(true);
+    }
+
+    @Bean
+    public ClientResourcesBuilderCustomizer lockRedisClientResourcesCustomizer(LockRedisProperties lockRedisProperties) {
+        // jittered backoff so that nodes do not all reconnect at the same time when Redis comes back
+        return builder -> builder.reconnectDelay(Delay.equalJitter(
+                lockRedisProperties.getReconnectDelayMin(),
+                lockRedisProperties.getReconnectDelayMax(),
+                2,
+                TimeUnit.MILLISECONDS
+        ));
+    }
 }
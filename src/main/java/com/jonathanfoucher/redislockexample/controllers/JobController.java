@@ -3,8 +3,10 @@ package com.jonathanfoucher.redislockexample.controllers;
 import com.jonathanfoucher.redislockexample.data.dto.JobDto;
 import com.jonathanfoucher.redislockexample.services.JobService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -19,8 +21,12 @@ public class JobController {
     }
 
     @PostMapping
-    public Long createJob(@RequestParam String name) {
-        return jobService.createJob(name);
+    public Long createJob(
+            @RequestParam String name,
+            @RequestParam(name = "run_at", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime runAt,
+            @RequestParam(name = "chunk_count", required = false) Integer chunkCount
+    ) {
+        return jobService.createJob(name, runAt, chunkCount);
     }
 
     @PostMapping("/{id}/start")
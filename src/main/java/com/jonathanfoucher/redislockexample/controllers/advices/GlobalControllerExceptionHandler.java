@@ -1,5 +1,6 @@
 package com.jonathanfoucher.redislockexample.controllers.advices;
 
+import com.jonathanfoucher.redislockexample.errors.InvalidChunkCountException;
 import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
 import com.jonathanfoucher.redislockexample.errors.JobLockedException;
 import com.jonathanfoucher.redislockexample.errors.JobNotFoundException;
@@ -27,7 +28,7 @@ public class GlobalControllerExceptionHandler {
                 .body(exception.getMessage());
     }
 
-    @ExceptionHandler(JobAlreadyProcessedException.class)
+    @ExceptionHandler({JobAlreadyProcessedException.class, InvalidChunkCountException.class})
     public final ResponseEntity<String> handleBadRequestException(Exception exception) {
         log.warn(exception.getMessage());
         return ResponseEntity.status(BAD_REQUEST)
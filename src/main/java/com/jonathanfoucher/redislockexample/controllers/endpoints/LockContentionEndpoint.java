@@ -0,0 +1,26 @@
+package com.jonathanfoucher.redislockexample.controllers.endpoints;
+
+import com.jonathanfoucher.redislockexample.data.dto.LockContentionReportDto;
+import com.jonathanfoucher.redislockexample.services.LockContentionProfiler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor
+@Component
+@Endpoint(id = "locks")
+public class LockContentionEndpoint {
+    private final LockContentionProfiler lockContentionProfiler;
+
+    @ReadOperation
+    public LockContentionReportDto getReport() {
+        return lockContentionProfiler.report();
+    }
+
+    @DeleteOperation
+    public void resetReport() {
+        lockContentionProfiler.reset();
+    }
+}
@@ -0,0 +1,12 @@
+package com.jonathanfoucher.redislockexample.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ContendedKeyDto {
+    private String key;
+    private long count;
+    private long error;
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 
 @Getter
 @Setter
@@ -13,10 +14,12 @@ public class JobDto {
     private String name;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private OffsetDateTime runAt;
+    private Integer chunkCount;
     private JobStatus status;
 
     @Override
     public String toString() {
-        return String.format("{ id=%s, name=\"%s\", start_date=%s, end_date=%s, status=%s}", id, name, startDate, endDate, status);
+        return String.format("{ id=%s, name=\"%s\", start_date=%s, end_date=%s, run_at=%s, chunk_count=%s, status=%s}", id, name, startDate, endDate, runAt, chunkCount, status);
     }
 }
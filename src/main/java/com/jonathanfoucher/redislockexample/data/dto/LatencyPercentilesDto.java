@@ -0,0 +1,15 @@
+package com.jonathanfoucher.redislockexample.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LatencyPercentilesDto {
+    private long count;
+    private long p50Millis;
+    private long p90Millis;
+    private long p99Millis;
+    private long p999Millis;
+    private long maxMillis;
+}
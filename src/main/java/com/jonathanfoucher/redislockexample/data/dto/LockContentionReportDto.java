@@ -0,0 +1,25 @@
+package com.jonathanfoucher.redislockexample.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class LockContentionReportDto {
+    private long leaseMillis;
+    private long contentionThresholdMillis;
+    private long timeouts;
+    private long lockErrors;
+    private long leaseOverruns;
+    private int inFlightStarts;
+    private int peakInFlightStarts;
+    private LatencyPercentilesDto wait;
+    private LatencyPercentilesDto hold;
+    private LatencyPercentilesDto unrenewedHold;
+    private double p99LeaseUsage;
+    private double maxLeaseUsage;
+    private List<ContendedKeyDto> contendedJobIds;
+    private List<ContendedKeyDto> contendedJobNames;
+}
@@ -0,0 +1,7 @@
+package com.jonathanfoucher.redislockexample.data.enums;
+
+public enum LockWaitOutcome {
+    ACQUIRED,
+    TIMED_OUT,
+    FAILED,
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 
 @Getter
 @Setter
@@ -18,6 +19,8 @@ public class Job {
     private String name;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private OffsetDateTime runAt;
+    private Integer chunkCount;
     @Enumerated(EnumType.STRING)
     private JobStatus status;
 }
@@ -0,0 +1,20 @@
+package com.jonathanfoucher.redislockexample.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "job_chunk")
+public class JobChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long jobId;
+    private Integer chunkIndex;
+    private LocalDateTime endDate;
+}
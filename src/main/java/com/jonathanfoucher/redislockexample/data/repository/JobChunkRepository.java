@@ -0,0 +1,12 @@
+package com.jonathanfoucher.redislockexample.data.repository;
+
+import com.jonathanfoucher.redislockexample.data.model.JobChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface JobChunkRepository extends JpaRepository<JobChunk, Long> {
+    List<JobChunk> findByJobId(Long jobId);
+}
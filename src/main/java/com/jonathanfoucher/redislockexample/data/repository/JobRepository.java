@@ -1,9 +1,15 @@
 package com.jonathanfoucher.redislockexample.data.repository;
 
+import com.jonathanfoucher.redislockexample.data.enums.JobStatus;
 import com.jonathanfoucher.redislockexample.data.model.Job;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+
 @Repository
 public interface JobRepository extends JpaRepository<Job, Long> {
+    Slice<Job> findByStatusAndRunAtLessThanEqual(JobStatus status, OffsetDateTime runAt, Pageable pageable);
 }
@@ -0,0 +1,151 @@
+package com.jonathanfoucher.redislockexample.data.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Schedule of the jobs in two Redis sorted sets : the pending jobs scored by their start time, and the in-flight jobs
+ * scored by the deadline of their claim. Scores are epoch milliseconds, so they do not depend on the time zone of the
+ * nodes.
+ */
+@RequiredArgsConstructor
+@Repository
+public class JobScheduleRepository {
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${redis-lock-example.job-schedule-key}")
+    private String jobScheduleKey;
+
+    // moves the due entries to the in-flight set in a single atomic step, so each of them is claimed by only one node
+    // and is not lost if that node fails to start it
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DUE_JOBS_SCRIPT = new DefaultRedisScript<>("""
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+            for _, jobId in ipairs(due) do
+                redis.call('ZADD', KEYS[2], ARGV[3], jobId)
+                redis.call('ZREM', KEYS[1], jobId)
+            end
+            return due
+            """, List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REQUEUE_EXPIRED_CLAIMS_SCRIPT = new DefaultRedisScript<>("""
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1])
+            for _, jobId in ipairs(expired) do
+                redis.call('ZADD', KEYS[1], ARGV[1], jobId)
+                redis.call('ZREM', KEYS[2], jobId)
+            end
+            return expired
+            """, List.class);
+
+    private static final RedisScript<Long> RESCHEDULE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[2], ARGV[1])
+            return redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+            """, Long.class);
+
+    // a job already claimed by a node is left to that node
+    private static final RedisScript<Long> SCHEDULE_ALL_IF_ABSENT_SCRIPT = new DefaultRedisScript<>("""
+            local added = 0
+            for i = 1, #ARGV, 2 do
+                if not redis.call('ZSCORE', KEYS[2], ARGV[i]) then
+                    added = added + redis.call('ZADD', KEYS[1], 'NX', ARGV[i + 1], ARGV[i])
+                end
+            end
+            return added
+            """, Long.class);
+
+    // only pushes back the deadline of the claims that are still in flight
+    private static final RedisScript<Long> EXTEND_CLAIMS_SCRIPT = new DefaultRedisScript<>("""
+            local extended = 0
+            for i = 2, #ARGV do
+                extended = extended + redis.call('ZADD', KEYS[2], 'XX', 'CH', ARGV[1], ARGV[i])
+            end
+            return extended
+            """, Long.class);
+
+    public void schedule(Long jobId, Instant runAt) {
+        stringRedisTemplate.opsForZSet()
+                .add(jobScheduleKey, String.valueOf(jobId), runAt.toEpochMilli());
+    }
+
+    public long scheduleAllIfAbsent(Map<Long, Instant> runAtByJobId) {
+        String[] args = runAtByJobId.entrySet()
+                .stream()
+                .flatMap(entry -> Stream.of(String.valueOf(entry.getKey()), String.valueOf(entry.getValue().toEpochMilli())))
+                .toArray(String[]::new);
+        Long added = stringRedisTemplate.execute(SCHEDULE_ALL_IF_ABSENT_SCRIPT, getKeys(), (Object[]) args);
+        return added != null ? added : 0;
+    }
+
+    public List<Long> claimDueJobs(Instant now, int limit, Instant claimDeadline) {
+        return convertToJobIds(stringRedisTemplate.execute(
+                CLAIM_DUE_JOBS_SCRIPT,
+                getKeys(),
+                String.valueOf(now.toEpochMilli()),
+                String.valueOf(limit),
+                String.valueOf(claimDeadline.toEpochMilli())
+        ));
+    }
+
+    public void extendClaims(Collection<Long> jobIds, Instant claimDeadline) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        String[] args = Stream.concat(
+                        Stream.of(String.valueOf(claimDeadline.toEpochMilli())),
+                        jobIds.stream().map(String::valueOf)
+                )
+                .toArray(String[]::new);
+        stringRedisTemplate.execute(EXTEND_CLAIMS_SCRIPT, getKeys(), (Object[]) args);
+    }
+
+    public List<Long> requeueExpiredClaims(Instant now) {
+        return convertToJobIds(stringRedisTemplate.execute(
+                REQUEUE_EXPIRED_CLAIMS_SCRIPT,
+                getKeys(),
+                String.valueOf(now.toEpochMilli())
+        ));
+    }
+
+    public void reschedule(Long jobId, Instant runAt) {
+        stringRedisTemplate.execute(
+                RESCHEDULE_SCRIPT,
+                getKeys(),
+                String.valueOf(jobId),
+                String.valueOf(runAt.toEpochMilli())
+        );
+    }
+
+    public void release(Long jobId) {
+        stringRedisTemplate.opsForZSet()
+                .remove(getInFlightKey(), String.valueOf(jobId));
+    }
+
+    private List<String> getKeys() {
+        return List.of(jobScheduleKey, getInFlightKey());
+    }
+
+    // the hash tag puts both sets in the same cluster slot, as required by the scripts
+    private String getInFlightKey() {
+        return "{" + jobScheduleKey + "}:in_flight";
+    }
+
+    private List<Long> convertToJobIds(List<?> jobIds) {
+        if (jobIds == null) {
+            return List.of();
+        }
+        return jobIds.stream()
+                .map(jobId -> Long.valueOf(jobId.toString()))
+                .toList();
+    }
+}
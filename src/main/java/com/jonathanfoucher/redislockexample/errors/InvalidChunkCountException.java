@@ -0,0 +1,7 @@
+package com.jonathanfoucher.redislockexample.errors;
+
+public class InvalidChunkCountException extends RuntimeException {
+    public InvalidChunkCountException(int chunkCount, int maxChunkCount) {
+        super("Invalid chunk count=" + chunkCount + ", must be between 1 and " + maxChunkCount);
+    }
+}
@@ -0,0 +1,127 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.model.Job;
+import com.jonathanfoucher.redislockexample.data.model.JobChunk;
+import com.jonathanfoucher.redislockexample.data.repository.JobChunkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.support.locks.RenewableLockRegistry;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Service
+public class JobChunkService {
+    private final JobChunkRepository jobChunkRepository;
+    private final RenewableLockRegistry redisLockRegistry;
+    private final int releaseTimeDuration;
+    // bounds the chunks running at the same time on the node, whatever their job
+    private final Semaphore chunkPermits;
+
+    public JobChunkService(
+            JobChunkRepository jobChunkRepository,
+            RenewableLockRegistry redisLockRegistry,
+            @Value("${redis-lock-example.release-time-duration}") int releaseTimeDuration,
+            @Value("${redis-lock-example.job-chunk-parallelism}") int chunkParallelism
+    ) {
+        this.jobChunkRepository = jobChunkRepository;
+        this.redisLockRegistry = redisLockRegistry;
+        this.releaseTimeDuration = releaseTimeDuration;
+        this.chunkPermits = new Semaphore(chunkParallelism, true);
+    }
+
+    /**
+     * Runs the chunks of a job in parallel, up to the chunk parallelism of the node, skipping the ones already
+     * checkpointed by a previous attempt.
+     * Must be called by the thread holding the job lock, which is renewed until every chunk is done.
+     * Never returns while a chunk is still running, so the lock cannot be released under a running chunk.
+     */
+    public void processChunks(Job job, LockLease lockLease, IntConsumer chunkProcessor) {
+        Set<Integer> completedChunks = jobChunkRepository.findByJobId(job.getId())
+                .stream()
+                .map(JobChunk::getChunkIndex)
+                .collect(Collectors.toSet());
+
+        // closing the executor waits for every submitted chunk to terminate
+        try (ExecutorService chunkExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> chunks = IntStream.range(0, job.getChunkCount())
+                    .filter(chunkIndex -> !completedChunks.contains(chunkIndex))
+                    .<Future<?>>mapToObj(chunkIndex -> chunkExecutor.submit(() -> processChunk(job, chunkIndex, chunkProcessor)))
+                    .toList();
+            log.info("processing {} remaining chunks out of {} for job {}", chunks.size(), job.getChunkCount(), job.getId());
+
+            try {
+                waitForChunks(job, lockLease, chunks);
+            } catch (RuntimeException e) {
+                log.error("cancelling remaining chunks of job {}", job.getId());
+                chunkExecutor.shutdownNow();
+                throw e;
+            }
+        }
+    }
+
+    private void processChunk(Job job, int chunkIndex, IntConsumer chunkProcessor) {
+        try {
+            chunkPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            chunkProcessor.accept(chunkIndex);
+            jobChunkRepository.save(createJobChunkEntity(job.getId(), chunkIndex));
+        } finally {
+            chunkPermits.release();
+        }
+        log.info("processed chunk {} of job {}", chunkIndex, job.getId());
+    }
+
+    private void waitForChunks(Job job, LockLease lockLease, List<Future<?>> chunks) {
+        String lockKey = String.valueOf(job.getId());
+        long renewIntervalNanos = Duration.ofSeconds(releaseTimeDuration).toNanos() / 3;
+        long nextRenewal = System.nanoTime() + renewIntervalNanos;
+        Throwable chunkFailure = null;
+
+        for (Future<?> chunk : chunks) {
+            while (true) {
+                try {
+                    chunk.get(Math.max(0, nextRenewal - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    redisLockRegistry.renewLock(lockKey);
+                    lockLease.renewed();
+                    nextRenewal = System.nanoTime() + renewIntervalNanos;
+                } catch (ExecutionException e) {
+                    // the other chunks keep running so that their checkpoints are saved
+                    if (chunkFailure == null) {
+                        chunkFailure = e.getCause();
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        if (chunkFailure != null) {
+            throw new RuntimeException(chunkFailure);
+        }
+    }
+
+    private JobChunk createJobChunkEntity(Long jobId, int chunkIndex) {
+        JobChunk entity = new JobChunk();
+        entity.setJobId(jobId);
+        entity.setChunkIndex(chunkIndex);
+        entity.setEndDate(LocalDateTime.now());
+        return entity;
+    }
+}
@@ -0,0 +1,122 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.repository.JobScheduleRepository;
+import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
+import com.jonathanfoucher.redislockexample.errors.JobNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class JobDispatcher {
+    private final JobScheduleRepository jobScheduleRepository;
+    private final JobService jobService;
+    private final ExecutorService jobDispatchExecutor;
+    private final Set<Long> runningJobIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    @Value("${redis-lock-example.job-dispatcher.batch-size}")
+    private int batchSize;
+    @Value("${redis-lock-example.job-dispatcher.claim-timeout-millis}")
+    private long claimTimeoutMillis;
+    @Value("${redis-lock-example.job-dispatcher.retry-delay-millis}")
+    private long retryDelayMillis;
+    @Value("${redis-lock-example.job-dispatcher.reconcile-window-millis}")
+    private long reconcileWindowMillis;
+    @Value("${redis-lock-example.job-dispatcher.reconcile-page-size}")
+    private int reconcilePageSize;
+
+    @Scheduled(fixedDelayString = "${redis-lock-example.job-dispatcher.poll-interval-millis}")
+    public void dispatchDueJobs() {
+        Instant now = Instant.now();
+        List<Long> expiredJobIds = jobScheduleRepository.requeueExpiredClaims(now);
+        if (!expiredJobIds.isEmpty()) {
+            log.warn("requeued jobs with expired claims {}", expiredJobIds);
+        }
+
+        List<Long> jobIds = jobScheduleRepository.claimDueJobs(now, batchSize, now.plusMillis(claimTimeoutMillis));
+        if (!jobIds.isEmpty()) {
+            log.info("dispatching due jobs {}", jobIds);
+        }
+        jobIds.forEach(jobId -> jobDispatchExecutor.execute(() -> startJob(jobId)));
+    }
+
+    /**
+     * Pushes back the deadline of the claims of the jobs running on this node, so that a long job is not requeued
+     * and claimed by another node while it runs.
+     */
+    @Scheduled(fixedDelayString = "${redis-lock-example.job-dispatcher.claim-heartbeat-interval-millis}")
+    public void extendRunningClaims() {
+        try {
+            jobScheduleRepository.extendClaims(List.copyOf(runningJobIds), Instant.now().plusMillis(claimTimeoutMillis));
+        } catch (Exception e) {
+            // retried by the next heartbeat, the claims only expire if Redis stays unreachable for the claim timeout
+            log.warn(e.getMessage());
+            log.warn("failed to extend the claims of running jobs {}", runningJobIds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${redis-lock-example.job-dispatcher.reconcile-interval-millis}")
+    public void reconcileSchedule() {
+        jobService.reconcileSchedule(OffsetDateTime.now().plus(Duration.ofMillis(reconcileWindowMillis)), reconcilePageSize);
+    }
+
+    // the claims of the jobs interrupted by the shutdown are left to expire, so that they are requeued
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+    }
+
+    private void startJob(Long jobId) {
+        runningJobIds.add(jobId);
+        try {
+            jobService.startJob(jobId);
+        } catch (JobNotFoundException | JobAlreadyProcessedException e) {
+            log.warn(e.getMessage());
+            log.warn("dropping scheduled job {}", jobId);
+        } catch (Exception e) {
+            // the job could not be started (locked by another node, database or Redis unavailable), so it is retried
+            log.warn(e.getMessage());
+            log.warn("failed to start scheduled job {}, retrying in {} ms", jobId, retryDelayMillis);
+            reschedule(jobId);
+            return;
+        } finally {
+            runningJobIds.remove(jobId);
+        }
+        if (!stopping) {
+            release(jobId);
+        }
+    }
+
+    private void reschedule(Long jobId) {
+        try {
+            jobScheduleRepository.reschedule(jobId, Instant.now().plusMillis(retryDelayMillis));
+        } catch (Exception e) {
+            // the claim is left to expire, and the job is then requeued by the next poll
+            log.warn(e.getMessage());
+            log.warn("failed to reschedule job {}, waiting for its claim to expire", jobId);
+        }
+    }
+
+    private void release(Long jobId) {
+        try {
+            jobScheduleRepository.release(jobId);
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+            log.warn("failed to release scheduled job {}, waiting for its claim to expire", jobId);
+        }
+    }
+}
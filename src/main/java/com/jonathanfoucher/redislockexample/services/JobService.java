@@ -1,30 +1,51 @@
 package com.jonathanfoucher.redislockexample.services;
 
 import com.jonathanfoucher.redislockexample.data.dto.JobDto;
+import com.jonathanfoucher.redislockexample.data.enums.LockWaitOutcome;
 import com.jonathanfoucher.redislockexample.data.model.Job;
 import com.jonathanfoucher.redislockexample.data.repository.JobRepository;
+import com.jonathanfoucher.redislockexample.data.repository.JobScheduleRepository;
+import com.jonathanfoucher.redislockexample.errors.InvalidChunkCountException;
 import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
 import com.jonathanfoucher.redislockexample.errors.JobLockedException;
 import com.jonathanfoucher.redislockexample.errors.JobNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.integration.support.locks.ExpirableLockRegistry;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
 import static com.jonathanfoucher.redislockexample.data.enums.JobStatus.*;
+import static com.jonathanfoucher.redislockexample.data.enums.LockWaitOutcome.*;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class JobService {
     private final JobRepository jobRepository;
+    private final JobScheduleRepository jobScheduleRepository;
     private final ExpirableLockRegistry redisLockRegistry;
+    private final LockContentionProfiler lockContentionProfiler;
+    private final JobChunkService jobChunkService;
+
+    @Value("${redis-lock-example.default-job-chunk-count}")
+    private int defaultJobChunkCount;
+    @Value("${redis-lock-example.max-job-chunk-count}")
+    private int maxJobChunkCount;
 
     private static final int TRY_LOCK_TIMEOUT = 60;
 
@@ -35,31 +56,85 @@ public class JobService {
                 .toList();
     }
 
-    public Long createJob(String name) {
-        Job job = createJobEntity(name);
-        return jobRepository.save(job)
+    public Long createJob(String name, OffsetDateTime runAt, Integer chunkCount) {
+        int jobChunkCount = chunkCount != null ? chunkCount : defaultJobChunkCount;
+        if (jobChunkCount < 1 || jobChunkCount > maxJobChunkCount) {
+            throw new InvalidChunkCountException(jobChunkCount, maxJobChunkCount);
+        }
+        Job job = createJobEntity(name, runAt, jobChunkCount);
+        Long id = jobRepository.save(job)
                 .getId();
+        if (runAt != null) {
+            try {
+                jobScheduleRepository.schedule(id, runAt.toInstant());
+                log.info("scheduled job {} to run at {}", id, runAt);
+            } catch (DataAccessException e) {
+                // the job is saved, it will be added to the schedule by the next reconciliation
+                log.warn(e.getMessage());
+                log.warn("failed to schedule job {}, waiting for reconciliation", id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Adds the waiting jobs due before the given date time to the schedule, unless they are already in it or claimed
+     * by a node, so that a job whose scheduling failed, or whose entry was lost with the Redis data, is still
+     * dispatched. The jobs are read and scheduled page by page.
+     */
+    public void reconcileSchedule(OffsetDateTime dueBefore, int pageSize) {
+        Pageable pageable = PageRequest.of(0, pageSize, Sort.by("id"));
+        long rescheduledJobs = 0;
+        Slice<Job> jobs;
+        do {
+            jobs = jobRepository.findByStatusAndRunAtLessThanEqual(WAITING, dueBefore, pageable);
+            Map<Long, Instant> runAtByJobId = jobs.stream()
+                    .collect(Collectors.toMap(Job::getId, job -> job.getRunAt().toInstant()));
+            if (!runAtByJobId.isEmpty()) {
+                rescheduledJobs += jobScheduleRepository.scheduleAllIfAbsent(runAtByJobId);
+            }
+            pageable = jobs.nextPageable();
+        } while (jobs.hasNext());
+
+        if (rescheduledJobs > 0) {
+            log.info("rescheduled {} waiting jobs due before {}", rescheduledJobs, dueBefore);
+        }
     }
 
     public void startJob(Long id) {
-        Optional<Job> job = jobRepository.findById(id);
-        if (job.isEmpty()) {
-            throw new JobNotFoundException(id);
+        lockContentionProfiler.startEntered();
+        try {
+            Job job = getStartableJob(id);
+            Lock lock = getLock(job);
+            try {
+                // the job may have been processed by another node while waiting for the lock
+                job = getStartableJob(id);
+            } catch (RuntimeException e) {
+                lock.unlock();
+                throw e;
+            }
+            processJob(job, lock);
+        } finally {
+            lockContentionProfiler.startExited();
         }
-        if (!WAITING.equals(job.get().getStatus())) {
+    }
+
+    private Job getStartableJob(Long id) {
+        Job job = jobRepository.findById(id)
+                .orElseThrow(() -> new JobNotFoundException(id));
+        if (SUCCESS.equals(job.getStatus())) {
             throw new JobAlreadyProcessedException(id);
         }
-        processJob(job.get());
+        return job;
     }
 
-    private void processJob(Job job) {
-        Lock lock = getLock(job.getId());
+    private void processJob(Job job, Lock lock) {
+        LockLease lockLease = new LockLease();
 
         try {
             log.info("starting to process job {}", job.getId());
             job.setStartDate(LocalDateTime.now());
-            // simulate running job
-            doSomething();
+            jobChunkService.processChunks(job, lockLease, chunkIndex -> doSomething(job, chunkIndex));
             job.setStatus(SUCCESS);
             log.info("successfully processed job {}", job.getId());
         } catch (Exception e) {
@@ -69,19 +144,25 @@ public class JobService {
         } finally {
             job.setEndDate(LocalDateTime.now());
             jobRepository.save(job);
+            lockContentionProfiler.recordHold(lockLease.getHoldNanos(), lockLease.getLongestUnrenewedNanos());
             lock.unlock();
         }
     }
 
-    private Lock getLock(Long jobId) {
-        Lock lock = redisLockRegistry.obtain(String.valueOf(jobId));
+    private Lock getLock(Job job) {
+        Lock lock = redisLockRegistry.obtain(String.valueOf(job.getId()));
+        long waitStart = System.nanoTime();
+        LockWaitOutcome outcome = FAILED;
         try {
-            if (!lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS)) {
-                throw new JobLockedException(jobId);
-            }
+            outcome = lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS) ? ACQUIRED : TIMED_OUT;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } finally {
+            lockContentionProfiler.recordWait(job.getId(), job.getName(), System.nanoTime() - waitStart, outcome);
+        }
+        if (outcome == TIMED_OUT) {
+            throw new JobLockedException(job.getId());
         }
         return lock;
     }
@@ -92,18 +173,24 @@ public class JobService {
         dto.setName(entity.getName());
         dto.setStartDate(entity.getStartDate());
         dto.setEndDate(entity.getEndDate());
+        dto.setRunAt(entity.getRunAt());
+        dto.setChunkCount(entity.getChunkCount());
         dto.setStatus(entity.getStatus());
         return dto;
     }
 
-    private Job createJobEntity(String name) {
+    private Job createJobEntity(String name, OffsetDateTime runAt, int chunkCount) {
         Job entity = new Job();
         entity.setName(name);
+        entity.setRunAt(runAt);
+        entity.setChunkCount(chunkCount);
         entity.setStatus(WAITING);
         return entity;
     }
 
-    void doSomething() {
+    void doSomething(Job job, int chunkIndex) {
+        // simulate running the chunk of a job
+        log.info("processing chunk {} of job {}", chunkIndex, job.getId());
         try {
             TimeUnit.SECONDS.sleep(10);
         } catch (InterruptedException e) {
@@ -0,0 +1,145 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.dto.LatencyPercentilesDto;
+import com.jonathanfoucher.redislockexample.data.dto.LockContentionReportDto;
+import com.jonathanfoucher.redislockexample.data.enums.LockWaitOutcome;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class LockContentionProfiler {
+    private static final long HIGHEST_TRACKABLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final long leaseMillis;
+    private final long contentionThresholdMillis;
+    private final int reportSize;
+
+    private final Histogram waitHistogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS);
+    private final Histogram holdHistogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS);
+    private final Histogram unrenewedHoldHistogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS);
+    private final SpaceSavingSketch contendedJobIds;
+    private final SpaceSavingSketch contendedJobNames;
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder lockErrors = new LongAdder();
+    private final LongAdder leaseOverruns = new LongAdder();
+    private final AtomicInteger inFlightStarts = new AtomicInteger();
+    private final AtomicInteger peakInFlightStarts = new AtomicInteger();
+
+    public LockContentionProfiler(
+            @Value("${redis-lock-example.release-time-duration}") int releaseTimeDuration,
+            @Value("${redis-lock-example.lock-profiling.contention-threshold-millis}") long contentionThresholdMillis,
+            @Value("${redis-lock-example.lock-profiling.top-k-capacity}") int topKCapacity,
+            @Value("${redis-lock-example.lock-profiling.report-size}") int reportSize
+    ) {
+        this.leaseMillis = Duration.ofSeconds(releaseTimeDuration).toMillis();
+        this.contentionThresholdMillis = contentionThresholdMillis;
+        this.reportSize = reportSize;
+        this.contendedJobIds = new SpaceSavingSketch(topKCapacity);
+        this.contendedJobNames = new SpaceSavingSketch(topKCapacity);
+    }
+
+    /**
+     * Counts a job start in flight on this node, from the start request until the job is processed or rejected.
+     */
+    public void startEntered() {
+        peakInFlightStarts.accumulateAndGet(inFlightStarts.incrementAndGet(), Math::max);
+    }
+
+    public void startExited() {
+        inFlightStarts.decrementAndGet();
+    }
+
+    /**
+     * Records a lock wait, whatever its outcome. A failed wait (Redis unavailable, interrupted thread) is counted as a
+     * lock error, but not as contention on the job, since it does not come from another holder of the lock.
+     */
+    public void recordWait(Long jobId, String jobName, long waitNanos, LockWaitOutcome outcome) {
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        waitHistogram.recordValue(Math.min(waitMillis, HIGHEST_TRACKABLE_MILLIS));
+        switch (outcome) {
+            case FAILED -> lockErrors.increment();
+            case TIMED_OUT -> {
+                timeouts.increment();
+                recordContention(jobId, jobName);
+            }
+            case ACQUIRED -> {
+                if (waitMillis >= contentionThresholdMillis) {
+                    recordContention(jobId, jobName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a lock hold, along with the longest time the lock went without being renewed during that hold.
+     * Only the latter is compared to the lease, since a renewed lock can be held longer than the lease.
+     */
+    public void recordHold(long holdNanos, long longestUnrenewedNanos) {
+        long holdMillis = TimeUnit.NANOSECONDS.toMillis(holdNanos);
+        holdHistogram.recordValue(Math.min(holdMillis, HIGHEST_TRACKABLE_MILLIS));
+
+        long unrenewedMillis = TimeUnit.NANOSECONDS.toMillis(longestUnrenewedNanos);
+        unrenewedHoldHistogram.recordValue(Math.min(unrenewedMillis, HIGHEST_TRACKABLE_MILLIS));
+        if (unrenewedMillis >= leaseMillis) {
+            leaseOverruns.increment();
+        }
+    }
+
+    public LockContentionReportDto report() {
+        LatencyPercentilesDto unrenewedHold = convertHistogramToDto(unrenewedHoldHistogram);
+
+        LockContentionReportDto report = new LockContentionReportDto();
+        report.setLeaseMillis(leaseMillis);
+        report.setContentionThresholdMillis(contentionThresholdMillis);
+        report.setTimeouts(timeouts.sum());
+        report.setLockErrors(lockErrors.sum());
+        report.setLeaseOverruns(leaseOverruns.sum());
+        report.setInFlightStarts(inFlightStarts.get());
+        report.setPeakInFlightStarts(peakInFlightStarts.get());
+        report.setWait(convertHistogramToDto(waitHistogram));
+        report.setHold(convertHistogramToDto(holdHistogram));
+        report.setUnrenewedHold(unrenewedHold);
+        report.setP99LeaseUsage((double) unrenewedHold.getP99Millis() / leaseMillis);
+        report.setMaxLeaseUsage((double) unrenewedHold.getMaxMillis() / leaseMillis);
+        report.setContendedJobIds(contendedJobIds.top(reportSize));
+        report.setContendedJobNames(contendedJobNames.top(reportSize));
+        return report;
+    }
+
+    public void reset() {
+        waitHistogram.reset();
+        holdHistogram.reset();
+        unrenewedHoldHistogram.reset();
+        contendedJobIds.clear();
+        contendedJobNames.clear();
+        timeouts.reset();
+        lockErrors.reset();
+        leaseOverruns.reset();
+        peakInFlightStarts.set(inFlightStarts.get());
+    }
+
+    private void recordContention(Long jobId, String jobName) {
+        contendedJobIds.add(String.valueOf(jobId));
+        contendedJobNames.add(jobName);
+    }
+
+    private LatencyPercentilesDto convertHistogramToDto(Histogram histogram) {
+        Histogram snapshot = histogram.copy();
+        LatencyPercentilesDto dto = new LatencyPercentilesDto();
+        dto.setCount(snapshot.getTotalCount());
+        dto.setP50Millis(snapshot.getValueAtPercentile(50));
+        dto.setP90Millis(snapshot.getValueAtPercentile(90));
+        dto.setP99Millis(snapshot.getValueAtPercentile(99));
+        dto.setP999Millis(snapshot.getValueAtPercentile(99.9));
+        dto.setMaxMillis(snapshot.getMaxValue());
+        return dto;
+    }
+}
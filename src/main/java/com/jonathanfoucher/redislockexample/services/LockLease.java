@@ -0,0 +1,30 @@
+package com.jonathanfoucher.redislockexample.services;
+
+/**
+ * Tracks how long a held lock went without being renewed, which is what has to stay below the lock release time,
+ * as opposed to the whole hold duration. Only meant to be used by the thread holding the lock.
+ */
+public class LockLease {
+    private final long acquiredAt;
+    private long renewedAt;
+    private long longestUnrenewedNanos;
+
+    public LockLease() {
+        this.acquiredAt = System.nanoTime();
+        this.renewedAt = acquiredAt;
+    }
+
+    public void renewed() {
+        long now = System.nanoTime();
+        longestUnrenewedNanos = Math.max(longestUnrenewedNanos, now - renewedAt);
+        renewedAt = now;
+    }
+
+    public long getHoldNanos() {
+        return System.nanoTime() - acquiredAt;
+    }
+
+    public long getLongestUnrenewedNanos() {
+        return Math.max(longestUnrenewedNanos, System.nanoTime() - renewedAt);
+    }
+}
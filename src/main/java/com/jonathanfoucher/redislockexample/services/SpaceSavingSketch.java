@@ -0,0 +1,75 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.dto.ContendedKeyDto;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving top-K counter: keeps at most {@code capacity} keys, so memory stays bounded whatever the key
+ * cardinality. When a new key arrives on a full sketch it replaces the least frequent one and inherits its count,
+ * which is reported as the over-estimation error of that key.
+ */
+class SpaceSavingSketch {
+    private final int capacity;
+    private final Map<String, Counter> counters;
+
+    SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.counters = HashMap.newHashMap(capacity);
+    }
+
+    synchronized void add(String key) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count++;
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counters.put(key, new Counter(1, 0));
+            return;
+        }
+
+        Map.Entry<String, Counter> min = counters.entrySet()
+                .stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().count))
+                .orElseThrow();
+        counters.remove(min.getKey());
+        long minCount = min.getValue().count;
+        counters.put(key, new Counter(minCount + 1, minCount));
+    }
+
+    synchronized List<ContendedKeyDto> top(int limit) {
+        return counters.entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Counter> entry) -> entry.getValue().count).reversed())
+                .limit(limit)
+                .map(entry -> convertToDto(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    synchronized void clear() {
+        counters.clear();
+    }
+
+    private ContendedKeyDto convertToDto(String key, Counter counter) {
+        ContendedKeyDto dto = new ContendedKeyDto();
+        dto.setKey(key);
+        dto.setCount(counter.count);
+        dto.setError(counter.error);
+        return dto;
+    }
+
+    private static class Counter {
+        private long count;
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
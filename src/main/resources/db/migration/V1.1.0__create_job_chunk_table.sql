@@ -0,0 +1,10 @@
+drop table if exists job_chunk;
+create table job_chunk (
+    id              bigserial       primary key,
+    job_id          bigint          not null references job(id),
+    chunk_index     integer         not null,
+    end_date        timestamptz     not null
+);
+
+drop index if exists uk01_job_chunk;
+create unique index uk01_job_chunk on job_chunk(job_id, chunk_index);
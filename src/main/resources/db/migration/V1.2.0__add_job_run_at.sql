@@ -0,0 +1,4 @@
+alter table job add column run_at timestamptz;
+
+drop index if exists idx02_job;
+create index idx02_job on job(status, run_at);
@@ -0,0 +1,4 @@
+alter table job add column chunk_count integer;
+-- jobs created before chunking ran as a single unit
+update job set chunk_count = 1 where chunk_count is null;
+alter table job alter column chunk_count set not null;
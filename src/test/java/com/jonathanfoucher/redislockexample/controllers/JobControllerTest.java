@@ -5,6 +5,7 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.jonathanfoucher.redislockexample.controllers.advices.GlobalControllerExceptionHandler;
 import com.jonathanfoucher.redislockexample.data.dto.JobDto;
 import com.jonathanfoucher.redislockexample.data.enums.JobStatus;
+import com.jonathanfoucher.redislockexample.errors.InvalidChunkCountException;
 import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
 import com.jonathanfoucher.redislockexample.errors.JobLockedException;
 import com.jonathanfoucher.redislockexample.errors.JobNotFoundException;
@@ -19,6 +20,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import static java.util.Collections.emptyList;
@@ -45,6 +48,8 @@ class JobControllerTest {
     private static final String NAME = "SOME_JOB";
     private static final LocalDateTime START_DATE = LocalDateTime.now().minusMinutes(20);
     private static final LocalDateTime END_DATE = LocalDateTime.now().minusMinutes(19);
+    private static final Integer CHUNK_COUNT = 8;
+    private static final OffsetDateTime RUN_AT = OffsetDateTime.of(2026, 10, 20, 10, 15, 30, 0, ZoneOffset.ofHours(2));
     private static final JobStatus STATUS = JobStatus.SUCCESS;
 
     private static final ObjectMapper objectMapper;
@@ -97,7 +102,7 @@ class JobControllerTest {
     @Test
     void createJob() throws Exception {
         // GIVEN
-        when(jobService.createJob(NAME))
+        when(jobService.createJob(NAME, null, null))
                 .thenReturn(ID);
 
         // WHEN / THEN
@@ -107,7 +112,52 @@ class JobControllerTest {
                 .andExpect(content().contentType(APPLICATION_JSON))
                 .andExpect(content().json(objectMapper.writeValueAsString(ID)));
 
-        verify(jobService, times(1)).createJob(NAME);
+        verify(jobService, times(1)).createJob(NAME, null, null);
+    }
+
+    @Test
+    void createJobWithRunAt() throws Exception {
+        // GIVEN
+        when(jobService.createJob(NAME, RUN_AT, CHUNK_COUNT))
+                .thenReturn(ID);
+
+        // WHEN / THEN
+        mockMvc.perform(post(JOB_PATH)
+                        .queryParam("name", NAME)
+                        .queryParam("run_at", "2026-10-20T10:15:30+02:00")
+                        .queryParam("chunk_count", String.valueOf(CHUNK_COUNT)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(ID)));
+
+        verify(jobService, times(1)).createJob(NAME, RUN_AT, CHUNK_COUNT);
+    }
+
+    @Test
+    void createJobWithRunAtWithoutOffset() throws Exception {
+        // WHEN / THEN
+        mockMvc.perform(post(JOB_PATH)
+                        .queryParam("name", NAME)
+                        .queryParam("run_at", "2026-10-20T10:15:30"))
+                .andExpect(status().isBadRequest());
+
+        verify(jobService, never()).createJob(any(), any(), any());
+    }
+
+    @Test
+    void createJobWithInvalidChunkCount() throws Exception {
+        // GIVEN
+        when(jobService.createJob(NAME, null, 0))
+                .thenThrow(new InvalidChunkCountException(0, 64));
+
+        // WHEN / THEN
+        mockMvc.perform(post(JOB_PATH)
+                        .queryParam("name", NAME)
+                        .queryParam("chunk_count", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("\"Invalid chunk count=0, must be between 1 and 64\""));
+
+        verify(jobService, times(1)).createJob(NAME, null, 0);
     }
 
     @Test
@@ -167,6 +217,8 @@ class JobControllerTest {
         job.setName(NAME);
         job.setStartDate(START_DATE);
         job.setEndDate(END_DATE);
+        job.setRunAt(RUN_AT);
+        job.setChunkCount(CHUNK_COUNT);
         job.setStatus(STATUS);
         return job;
     }
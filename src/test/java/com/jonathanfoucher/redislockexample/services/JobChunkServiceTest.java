@@ -0,0 +1,208 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.model.Job;
+import com.jonathanfoucher.redislockexample.data.model.JobChunk;
+import com.jonathanfoucher.redislockexample.data.repository.JobChunkRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.integration.support.locks.RenewableLockRegistry;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(JobChunkService.class)
+@TestPropertySource(properties = {
+        "redis-lock-example.release-time-duration=1",
+        "redis-lock-example.job-chunk-parallelism=2"
+})
+class JobChunkServiceTest {
+    @Autowired
+    private JobChunkService jobChunkService;
+    @MockitoBean
+    private JobChunkRepository jobChunkRepository;
+    @MockitoBean
+    private RenewableLockRegistry redisLockRegistry;
+
+    private static final Long ID = 15L;
+    private static final String NAME = "SOME_JOB";
+    private static final int CHUNK_COUNT = 4;
+    private static final int CHUNK_PARALLELISM = 2;
+
+    @Test
+    void processChunks() {
+        // GIVEN
+        Job job = initJob();
+        Set<Integer> processedChunks = ConcurrentHashMap.newKeySet();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of());
+
+        // WHEN
+        jobChunkService.processChunks(job, new LockLease(), processedChunks::add);
+
+        // THEN
+        verify(jobChunkRepository, times(1)).findByJobId(ID);
+        assertThat(processedChunks).containsExactlyInAnyOrder(0, 1, 2, 3);
+        assertThat(captureSavedChunks()).containsExactlyInAnyOrder(0, 1, 2, 3);
+        verify(redisLockRegistry, never()).renewLock(any());
+    }
+
+    @Test
+    void processChunksWithCompletedChunks() {
+        // GIVEN
+        Job job = initJob();
+        Set<Integer> processedChunks = ConcurrentHashMap.newKeySet();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of(initJobChunk(0), initJobChunk(2)));
+
+        // WHEN
+        jobChunkService.processChunks(job, new LockLease(), processedChunks::add);
+
+        // THEN
+        verify(jobChunkRepository, times(1)).findByJobId(ID);
+        assertThat(processedChunks).containsExactlyInAnyOrder(1, 3);
+        assertThat(captureSavedChunks()).containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    void processChunksWithChunkError() {
+        // GIVEN
+        Job job = initJob();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of());
+
+        // WHEN
+        assertThatThrownBy(() -> jobChunkService.processChunks(job, new LockLease(), chunkIndex -> {
+            if (chunkIndex == 1) {
+                throw new IllegalStateException("chunk failure");
+            }
+        }))
+                .isInstanceOf(RuntimeException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        // THEN
+        assertThat(captureSavedChunks()).containsExactlyInAnyOrder(0, 2, 3);
+    }
+
+    @Test
+    void processChunksWithBoundedParallelism() {
+        // GIVEN
+        Job job = initJob();
+        AtomicInteger runningChunks = new AtomicInteger();
+        AtomicInteger maxRunningChunks = new AtomicInteger();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of());
+
+        // WHEN
+        jobChunkService.processChunks(job, new LockLease(), chunkIndex -> {
+            maxRunningChunks.accumulateAndGet(runningChunks.incrementAndGet(), Math::max);
+            sleep(200);
+            runningChunks.decrementAndGet();
+        });
+
+        // THEN
+        assertEquals(CHUNK_PARALLELISM, maxRunningChunks.get());
+        assertThat(captureSavedChunks()).containsExactlyInAnyOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    void processChunksWithLockRenewal() {
+        // GIVEN
+        Job job = initJob();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of());
+
+        LockLease lockLease = new LockLease();
+
+        // WHEN
+        jobChunkService.processChunks(job, lockLease, chunkIndex -> sleep(800));
+
+        // THEN
+        verify(redisLockRegistry, atLeast(2)).renewLock(String.valueOf(ID));
+        assertThat(lockLease.getHoldNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(800));
+        assertThat(lockLease.getLongestUnrenewedNanos()).isLessThan(TimeUnit.MILLISECONDS.toNanos(800));
+        assertThat(captureSavedChunks()).containsExactlyInAnyOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    void processChunksWithLockRenewalError() {
+        // GIVEN
+        Job job = initJob();
+        Set<Integer> runningChunks = ConcurrentHashMap.newKeySet();
+
+        when(jobChunkRepository.findByJobId(ID))
+                .thenReturn(List.of());
+        doThrow(new IllegalStateException("lock lost"))
+                .when(redisLockRegistry).renewLock(String.valueOf(ID));
+
+        // WHEN
+        assertThatThrownBy(() -> jobChunkService.processChunks(job, new LockLease(), chunkIndex -> {
+            runningChunks.add(chunkIndex);
+            try {
+                sleep(5000);
+            } finally {
+                runningChunks.remove(chunkIndex);
+            }
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("lock lost");
+
+        // THEN
+        assertThat(runningChunks).isEmpty();
+        verify(jobChunkRepository, never()).save(any());
+    }
+
+    private List<Integer> captureSavedChunks() {
+        ArgumentCaptor<JobChunk> capturedChunks = ArgumentCaptor.forClass(JobChunk.class);
+        verify(jobChunkRepository, atLeast(0)).save(capturedChunks.capture());
+        capturedChunks.getAllValues()
+                .forEach(chunk -> {
+                    assertEquals(ID, chunk.getJobId());
+                    assertNotNull(chunk.getEndDate());
+                });
+        return capturedChunks.getAllValues()
+                .stream()
+                .map(JobChunk::getChunkIndex)
+                .toList();
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Job initJob() {
+        Job job = new Job();
+        job.setId(ID);
+        job.setName(NAME);
+        job.setChunkCount(CHUNK_COUNT);
+        return job;
+    }
+
+    private JobChunk initJobChunk(int chunkIndex) {
+        JobChunk chunk = new JobChunk();
+        chunk.setJobId(ID);
+        chunk.setChunkIndex(chunkIndex);
+        return chunk;
+    }
+}
@@ -0,0 +1,218 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.configs.JobConfig;
+import com.jonathanfoucher.redislockexample.data.repository.JobScheduleRepository;
+import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
+import com.jonathanfoucher.redislockexample.errors.JobLockedException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({JobDispatcher.class, JobConfig.class})
+@TestPropertySource(properties = {
+        "redis-lock-example.job-dispatcher.batch-size=10",
+        "redis-lock-example.job-dispatcher.claim-timeout-millis=600000",
+        "redis-lock-example.job-dispatcher.retry-delay-millis=5000",
+        "redis-lock-example.job-dispatcher.reconcile-window-millis=3600000",
+        "redis-lock-example.job-dispatcher.reconcile-page-size=500"
+})
+class JobDispatcherTest {
+    @Autowired
+    private JobDispatcher jobDispatcher;
+    @MockitoBean
+    private JobScheduleRepository jobScheduleRepository;
+    @MockitoBean
+    private JobService jobService;
+
+    private static final int BATCH_SIZE = 10;
+    private static final long CLAIM_TIMEOUT_MILLIS = 600000;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+    private static final long RECONCILE_WINDOW_MILLIS = 3600000;
+    private static final int RECONCILE_PAGE_SIZE = 500;
+    private static final int DISPATCH_TIMEOUT = 1000;
+    private static final Long ID = 15L;
+    private static final Long OTHER_ID = 16L;
+
+    @Test
+    void dispatchDueJobs() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID, OTHER_ID));
+
+        // WHEN
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN
+        ArgumentCaptor<Instant> capturedNow = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> capturedClaimDeadline = ArgumentCaptor.forClass(Instant.class);
+        verify(jobScheduleRepository, times(1)).requeueExpiredClaims(any(Instant.class));
+        verify(jobScheduleRepository, times(1))
+                .claimDueJobs(capturedNow.capture(), eq(BATCH_SIZE), capturedClaimDeadline.capture());
+        assertThat(Duration.between(capturedNow.getValue(), capturedClaimDeadline.getValue()))
+                .isEqualTo(Duration.ofMillis(CLAIM_TIMEOUT_MILLIS));
+
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(OTHER_ID);
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).release(ID);
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).release(OTHER_ID);
+        verify(jobScheduleRepository, never()).reschedule(any(), any());
+    }
+
+    @Test
+    void dispatchDueJobsWithJobLocked() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID, OTHER_ID));
+        doThrow(new JobLockedException(ID))
+                .when(jobService).startJob(ID);
+
+        // WHEN
+        Instant dispatchDate = Instant.now();
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN
+        ArgumentCaptor<Instant> capturedRunAt = ArgumentCaptor.forClass(Instant.class);
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(OTHER_ID);
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).reschedule(eq(ID), capturedRunAt.capture());
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).release(OTHER_ID);
+        verify(jobScheduleRepository, never()).release(ID);
+        assertThat(capturedRunAt.getValue()).isAfterOrEqualTo(dispatchDate.plusMillis(RETRY_DELAY_MILLIS));
+    }
+
+    @Test
+    void dispatchDueJobsWithInfrastructureError() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID));
+        doThrow(new QueryTimeoutException("Redis command timed out"))
+                .when(jobService).startJob(ID);
+        doThrow(new QueryTimeoutException("Redis command timed out"))
+                .when(jobScheduleRepository).reschedule(eq(ID), any(Instant.class));
+
+        // WHEN
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).reschedule(eq(ID), any(Instant.class));
+        verify(jobScheduleRepository, never()).release(ID);
+    }
+
+    @Test
+    void dispatchDueJobsWithJobAlreadyProcessed() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID));
+        doThrow(new JobAlreadyProcessedException(ID))
+                .when(jobService).startJob(ID);
+
+        // WHEN
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).release(ID);
+        verify(jobScheduleRepository, never()).reschedule(any(), any());
+    }
+
+    @Test
+    void dispatchDueJobsWithNoDueJob() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(emptyList());
+
+        // WHEN
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN
+        verify(jobScheduleRepository, times(1)).requeueExpiredClaims(any(Instant.class));
+        verify(jobScheduleRepository, times(1)).claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class));
+        verify(jobService, never()).startJob(any());
+    }
+
+    @Test
+    void extendRunningClaims() throws InterruptedException {
+        // GIVEN
+        CountDownLatch jobFinished = new CountDownLatch(1);
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID));
+        doAnswer(invocation -> {
+            jobFinished.await();
+            return null;
+        }).when(jobService).startJob(ID);
+
+        jobDispatcher.dispatchDueJobs();
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+
+        // WHEN
+        Instant heartbeatDate = Instant.now();
+        jobDispatcher.extendRunningClaims();
+        jobFinished.countDown();
+
+        // THEN
+        ArgumentCaptor<Instant> capturedClaimDeadline = ArgumentCaptor.forClass(Instant.class);
+        verify(jobScheduleRepository, times(1))
+                .extendClaims(argThat(jobIds -> jobIds.contains(ID)), capturedClaimDeadline.capture());
+        assertThat(capturedClaimDeadline.getValue()).isAfterOrEqualTo(heartbeatDate.plusMillis(CLAIM_TIMEOUT_MILLIS));
+        verify(jobScheduleRepository, timeout(DISPATCH_TIMEOUT).times(1)).release(ID);
+    }
+
+    @Test
+    void extendRunningClaimsWithRedisError() {
+        // GIVEN
+        doThrow(new QueryTimeoutException("Redis command timed out"))
+                .when(jobScheduleRepository).extendClaims(any(), any(Instant.class));
+
+        // WHEN
+        jobDispatcher.extendRunningClaims();
+
+        // THEN
+        verify(jobScheduleRepository, times(1)).extendClaims(any(), any(Instant.class));
+    }
+
+    @Test
+    @DirtiesContext
+    void dispatchDueJobsWhileStopping() {
+        // GIVEN
+        when(jobScheduleRepository.claimDueJobs(any(Instant.class), eq(BATCH_SIZE), any(Instant.class)))
+                .thenReturn(List.of(ID));
+        jobDispatcher.stop();
+
+        // WHEN
+        jobDispatcher.dispatchDueJobs();
+
+        // THEN the claim is left to expire
+        verify(jobService, timeout(DISPATCH_TIMEOUT).times(1)).startJob(ID);
+        verify(jobScheduleRepository, after(DISPATCH_TIMEOUT).never()).release(ID);
+        verify(jobScheduleRepository, never()).reschedule(any(), any());
+    }
+
+    @Test
+    void reconcileSchedule() {
+        // WHEN
+        OffsetDateTime reconcileDate = OffsetDateTime.now();
+        jobDispatcher.reconcileSchedule();
+
+        // THEN
+        ArgumentCaptor<OffsetDateTime> capturedDueBefore = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(jobService, times(1)).reconcileSchedule(capturedDueBefore.capture(), eq(RECONCILE_PAGE_SIZE));
+        assertThat(capturedDueBefore.getValue())
+                .isAfterOrEqualTo(reconcileDate.plus(Duration.ofMillis(RECONCILE_WINDOW_MILLIS)));
+    }
+}
@@ -6,31 +6,51 @@ import com.jonathanfoucher.redislockexample.data.dto.JobDto;
 import com.jonathanfoucher.redislockexample.data.enums.JobStatus;
 import com.jonathanfoucher.redislockexample.data.model.Job;
 import com.jonathanfoucher.redislockexample.data.repository.JobRepository;
+import com.jonathanfoucher.redislockexample.data.repository.JobScheduleRepository;
+import com.jonathanfoucher.redislockexample.errors.InvalidChunkCountException;
 import com.jonathanfoucher.redislockexample.errors.JobAlreadyProcessedException;
 import com.jonathanfoucher.redislockexample.errors.JobLockedException;
 import com.jonathanfoucher.redislockexample.errors.JobNotFoundException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.integration.support.locks.ExpirableLockRegistry;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.function.IntConsumer;
 
 import static com.jonathanfoucher.redislockexample.data.enums.JobStatus.*;
+import static com.jonathanfoucher.redislockexample.data.enums.LockWaitOutcome.*;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @SpringJUnitConfig(JobService.class)
+@TestPropertySource(properties = {
+        "redis-lock-example.default-job-chunk-count=4",
+        "redis-lock-example.max-job-chunk-count=64"
+})
 class JobServiceTest {
     @MockitoSpyBean
     @Autowired
@@ -38,13 +58,27 @@ class JobServiceTest {
     @MockitoBean
     private JobRepository jobRepository;
     @MockitoBean
+    private JobScheduleRepository jobScheduleRepository;
+    @MockitoBean
     private ExpirableLockRegistry redisLockRegistry;
+    @MockitoBean
+    private LockContentionProfiler lockContentionProfiler;
+    @MockitoBean
+    private JobChunkService jobChunkService;
 
     private static final int TRY_LOCK_TIMEOUT = 60;
+    private static final int DEFAULT_JOB_CHUNK_COUNT = 4;
+    private static final int CHUNK_COUNT = 8;
+    private static final int MAX_JOB_CHUNK_COUNT = 64;
     private static final Long ID = 15L;
+    private static final Long OTHER_ID = 16L;
     private static final String NAME = "SOME_JOB";
     private static final LocalDateTime START_DATE = LocalDateTime.now().minusMinutes(20);
     private static final LocalDateTime END_DATE = LocalDateTime.now().minusMinutes(19);
+    private static final OffsetDateTime RUN_AT = OffsetDateTime.now().minusMinutes(21);
+    private static final Instant RUN_AT_INSTANT = RUN_AT.toInstant();
+    private static final OffsetDateTime DUE_BEFORE = OffsetDateTime.now().plusHours(1);
+    private static final int PAGE_SIZE = 1;
     private static final JobStatus STATUS = JobStatus.SUCCESS;
 
     private static final ObjectMapper objectMapper;
@@ -98,7 +132,7 @@ class JobServiceTest {
                 .thenReturn(job);
 
         // WHEN
-        Long result = jobService.createJob(NAME);
+        Long result = jobService.createJob(NAME, null, null);
 
         // THEN
         ArgumentCaptor<Job> capturedJob = ArgumentCaptor.forClass(Job.class);
@@ -112,7 +146,124 @@ class JobServiceTest {
         assertEquals(NAME, savedJob.getName());
         assertNull(savedJob.getStartDate());
         assertNull(savedJob.getEndDate());
+        assertNull(savedJob.getRunAt());
+        assertEquals(DEFAULT_JOB_CHUNK_COUNT, savedJob.getChunkCount());
         assertEquals(WAITING, savedJob.getStatus());
+
+        verify(jobScheduleRepository, never()).schedule(any(), any());
+    }
+
+    @Test
+    void createJobWithRunAt() {
+        // GIVEN
+        Job job = initJob();
+
+        when(jobRepository.save(any()))
+                .thenReturn(job);
+
+        // WHEN
+        Long result = jobService.createJob(NAME, RUN_AT, CHUNK_COUNT);
+
+        // THEN
+        ArgumentCaptor<Job> capturedJob = ArgumentCaptor.forClass(Job.class);
+        InOrder inOrder = inOrder(jobRepository, jobScheduleRepository);
+        inOrder.verify(jobRepository, times(1)).save(capturedJob.capture());
+        inOrder.verify(jobScheduleRepository, times(1)).schedule(ID, RUN_AT_INSTANT);
+
+        assertEquals(ID, result);
+
+        Job savedJob = capturedJob.getValue();
+        assertNotNull(savedJob);
+        assertNull(savedJob.getId());
+        assertEquals(NAME, savedJob.getName());
+        assertNull(savedJob.getStartDate());
+        assertNull(savedJob.getEndDate());
+        assertEquals(RUN_AT, savedJob.getRunAt());
+        assertEquals(CHUNK_COUNT, savedJob.getChunkCount());
+        assertEquals(WAITING, savedJob.getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, MAX_JOB_CHUNK_COUNT + 1})
+    void createJobWithInvalidChunkCount(int chunkCount) {
+        // WHEN
+        assertThatThrownBy(() -> jobService.createJob(NAME, null, chunkCount))
+                .isInstanceOf(InvalidChunkCountException.class)
+                .hasMessage("Invalid chunk count=" + chunkCount + ", must be between 1 and " + MAX_JOB_CHUNK_COUNT);
+
+        // THEN
+        verify(jobRepository, never()).save(any());
+        verify(jobScheduleRepository, never()).schedule(any(), any());
+    }
+
+    @Test
+    void createJobWithScheduleError() {
+        // GIVEN
+        Job job = initJob();
+
+        when(jobRepository.save(any()))
+                .thenReturn(job);
+        doThrow(new QueryTimeoutException("Redis command timed out"))
+                .when(jobScheduleRepository).schedule(ID, RUN_AT_INSTANT);
+
+        // WHEN
+        Long result = jobService.createJob(NAME, RUN_AT, CHUNK_COUNT);
+
+        // THEN
+        verify(jobRepository, times(1)).save(any());
+        verify(jobScheduleRepository, times(1)).schedule(ID, RUN_AT_INSTANT);
+
+        assertEquals(ID, result);
+    }
+
+    @Test
+    void reconcileSchedule() {
+        // GIVEN
+        Job job = initJob();
+        job.setStatus(WAITING);
+
+        Job otherJob = initJob();
+        otherJob.setId(OTHER_ID);
+        otherJob.setStatus(WAITING);
+
+        Pageable firstPage = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+        Pageable secondPage = firstPage.next();
+
+        when(jobRepository.findByStatusAndRunAtLessThanEqual(WAITING, DUE_BEFORE, firstPage))
+                .thenReturn(new SliceImpl<>(List.of(job), firstPage, true));
+        when(jobRepository.findByStatusAndRunAtLessThanEqual(WAITING, DUE_BEFORE, secondPage))
+                .thenReturn(new SliceImpl<>(List.of(otherJob), secondPage, false));
+        when(jobScheduleRepository.scheduleAllIfAbsent(Map.of(ID, RUN_AT_INSTANT)))
+                .thenReturn(1L);
+        when(jobScheduleRepository.scheduleAllIfAbsent(Map.of(OTHER_ID, RUN_AT_INSTANT)))
+                .thenReturn(0L);
+
+        // WHEN
+        jobService.reconcileSchedule(DUE_BEFORE, PAGE_SIZE);
+
+        // THEN
+        InOrder inOrder = inOrder(jobRepository, jobScheduleRepository);
+        inOrder.verify(jobRepository, times(1)).findByStatusAndRunAtLessThanEqual(WAITING, DUE_BEFORE, firstPage);
+        inOrder.verify(jobScheduleRepository, times(1)).scheduleAllIfAbsent(Map.of(ID, RUN_AT_INSTANT));
+        inOrder.verify(jobRepository, times(1)).findByStatusAndRunAtLessThanEqual(WAITING, DUE_BEFORE, secondPage);
+        inOrder.verify(jobScheduleRepository, times(1)).scheduleAllIfAbsent(Map.of(OTHER_ID, RUN_AT_INSTANT));
+        verify(jobScheduleRepository, never()).schedule(any(), any());
+    }
+
+    @Test
+    void reconcileScheduleWithoutDueJobs() {
+        // GIVEN
+        Pageable firstPage = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+
+        when(jobRepository.findByStatusAndRunAtLessThanEqual(WAITING, DUE_BEFORE, firstPage))
+                .thenReturn(new SliceImpl<>(emptyList(), firstPage, false));
+
+        // WHEN
+        jobService.reconcileSchedule(DUE_BEFORE, PAGE_SIZE);
+
+        // THEN
+        verify(jobRepository, times(1)).findByStatusAndRunAtLessThanEqual(any(), any(), any());
+        verify(jobScheduleRepository, never()).scheduleAllIfAbsent(any());
     }
 
     @Test
@@ -137,12 +288,18 @@ class JobServiceTest {
 
         // THEN
         ArgumentCaptor<Job> capturedJob = ArgumentCaptor.forClass(Job.class);
-        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lock);
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lockContentionProfiler, jobChunkService, lock);
+        inOrder.verify(lockContentionProfiler, times(1)).startEntered();
         inOrder.verify(jobRepository, times(1)).findById(ID);
         inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
         inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(lockContentionProfiler, times(1)).recordWait(eq(ID), eq(NAME), anyLong(), eq(ACQUIRED));
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(jobChunkService, times(1)).processChunks(eq(job), any(LockLease.class), any());
         inOrder.verify(jobRepository, times(1)).save(capturedJob.capture());
+        inOrder.verify(lockContentionProfiler, times(1)).recordHold(anyLong(), anyLong());
         inOrder.verify(lock, times(1)).unlock();
+        inOrder.verify(lockContentionProfiler, times(1)).startExited();
 
         Job savedJob = capturedJob.getValue();
         assertNotNull(savedJob);
@@ -170,20 +327,28 @@ class JobServiceTest {
         when(lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS))
                 .thenReturn(true);
 
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(2).accept(0);
+            return null;
+        }).when(jobChunkService).processChunks(eq(job), any(LockLease.class), any());
         doThrow(RuntimeException.class)
                 .when(jobService)
-                .doSomething();
+                .doSomething(job, 0);
 
         // WHEN
         jobService.startJob(ID);
 
         // THEN
         ArgumentCaptor<Job> capturedJob = ArgumentCaptor.forClass(Job.class);
-        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lock);
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lockContentionProfiler, jobChunkService, lock);
         inOrder.verify(jobRepository, times(1)).findById(ID);
         inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
         inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(lockContentionProfiler, times(1)).recordWait(eq(ID), eq(NAME), anyLong(), eq(ACQUIRED));
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(jobChunkService, times(1)).processChunks(eq(job), any(LockLease.class), any());
         inOrder.verify(jobRepository, times(1)).save(capturedJob.capture());
+        inOrder.verify(lockContentionProfiler, times(1)).recordHold(anyLong(), anyLong());
         inOrder.verify(lock, times(1)).unlock();
 
         Job savedJob = capturedJob.getValue();
@@ -195,6 +360,47 @@ class JobServiceTest {
         assertEquals(ERROR, savedJob.getStatus());
     }
 
+    @Test
+    void startJobInError() throws InterruptedException {
+        // GIVEN
+        Job job = new Job();
+        job.setId(ID);
+        job.setName(NAME);
+        job.setStartDate(START_DATE);
+        job.setEndDate(END_DATE);
+        job.setStatus(ERROR);
+
+        Lock lock = mock(Lock.class);
+
+        when(jobRepository.findById(ID))
+                .thenReturn(Optional.of(job));
+        when(redisLockRegistry.obtain(String.valueOf(ID)))
+                .thenReturn(lock);
+        when(lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS))
+                .thenReturn(true);
+
+        // WHEN
+        jobService.startJob(ID);
+
+        // THEN
+        ArgumentCaptor<Job> capturedJob = ArgumentCaptor.forClass(Job.class);
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, jobChunkService, lock);
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
+        inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(jobChunkService, times(1)).processChunks(eq(job), any(LockLease.class), any());
+        inOrder.verify(jobRepository, times(1)).save(capturedJob.capture());
+        inOrder.verify(lock, times(1)).unlock();
+
+        Job savedJob = capturedJob.getValue();
+        assertNotNull(savedJob);
+        assertEquals(ID, savedJob.getId());
+        assertNotEquals(START_DATE, savedJob.getStartDate());
+        assertNotEquals(END_DATE, savedJob.getEndDate());
+        assertEquals(SUCCESS, savedJob.getStatus());
+    }
+
     @Test
     void startJobWithJobNotFound() throws InterruptedException {
         // GIVEN
@@ -211,9 +417,12 @@ class JobServiceTest {
         // THEN
         verify(jobRepository, times(1)).findById(ID);
         verify(redisLockRegistry, never()).obtain(any());
+        verify(jobChunkService, never()).processChunks(any(), any(), any());
         verify(lock, never()).tryLock(anyInt(), any());
         verify(jobRepository, never()).save(any());
         verify(lock, never()).unlock();
+        verify(lockContentionProfiler, times(1)).startEntered();
+        verify(lockContentionProfiler, times(1)).startExited();
     }
 
     @Test
@@ -237,11 +446,52 @@ class JobServiceTest {
         // THEN
         verify(jobRepository, times(1)).findById(ID);
         verify(redisLockRegistry, never()).obtain(any());
+        verify(jobChunkService, never()).processChunks(any(), any(), any());
         verify(lock, never()).tryLock(anyInt(), any());
         verify(jobRepository, never()).save(any());
         verify(lock, never()).unlock();
     }
 
+    @Test
+    void startJobWithJobProcessedWhileWaitingForLock() throws InterruptedException {
+        // GIVEN
+        Job job = new Job();
+        job.setId(ID);
+        job.setName(NAME);
+        job.setStatus(WAITING);
+
+        Job processedJob = new Job();
+        processedJob.setId(ID);
+        processedJob.setName(NAME);
+        processedJob.setStatus(SUCCESS);
+
+        Lock lock = mock(Lock.class);
+
+        when(jobRepository.findById(ID))
+                .thenReturn(Optional.of(job))
+                .thenReturn(Optional.of(processedJob));
+        when(redisLockRegistry.obtain(String.valueOf(ID)))
+                .thenReturn(lock);
+        when(lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS))
+                .thenReturn(true);
+
+        // WHEN
+        assertThatThrownBy(() -> jobService.startJob(ID))
+                .isInstanceOf(JobAlreadyProcessedException.class)
+                .hasMessage("Job already processed for id=" + ID);
+
+        // THEN
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lockContentionProfiler, lock);
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
+        inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(lock, times(1)).unlock();
+        inOrder.verify(lockContentionProfiler, times(1)).startExited();
+        verify(jobChunkService, never()).processChunks(any(), any(), any());
+        verify(jobRepository, never()).save(any());
+    }
+
     @Test
     void startJobWithJobLocked() throws InterruptedException {
         // GIVEN
@@ -265,11 +515,47 @@ class JobServiceTest {
                 .hasMessage("Job locked for id=" + ID);
 
         // THEN
-        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lock);
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lockContentionProfiler, jobChunkService, lock);
+        inOrder.verify(jobRepository, times(1)).findById(ID);
+        inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
+        inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(lockContentionProfiler, times(1)).recordWait(eq(ID), eq(NAME), anyLong(), eq(TIMED_OUT));
+        verify(jobRepository, never()).save(any());
+        verify(lockContentionProfiler, never()).recordHold(anyLong(), anyLong());
+        verify(jobChunkService, never()).processChunks(any(), any(), any());
+        inOrder.verify(lock, never()).unlock();
+    }
+
+    @Test
+    void startJobWithLockError() throws InterruptedException {
+        // GIVEN
+        Job job = new Job();
+        job.setId(ID);
+        job.setName(NAME);
+        job.setStatus(WAITING);
+
+        Lock lock = mock(Lock.class);
+
+        when(jobRepository.findById(ID))
+                .thenReturn(Optional.of(job));
+        when(redisLockRegistry.obtain(String.valueOf(ID)))
+                .thenReturn(lock);
+        when(lock.tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS))
+                .thenThrow(new CannotAcquireLockException("Failed to lock mutex"));
+
+        // WHEN
+        assertThatThrownBy(() -> jobService.startJob(ID))
+                .isInstanceOf(CannotAcquireLockException.class);
+
+        // THEN
+        InOrder inOrder = inOrder(jobRepository, redisLockRegistry, lockContentionProfiler, jobChunkService, lock);
         inOrder.verify(jobRepository, times(1)).findById(ID);
         inOrder.verify(redisLockRegistry, times(1)).obtain(String.valueOf(ID));
         inOrder.verify(lock, times(1)).tryLock(TRY_LOCK_TIMEOUT, TimeUnit.SECONDS);
+        inOrder.verify(lockContentionProfiler, times(1)).recordWait(eq(ID), eq(NAME), anyLong(), eq(FAILED));
         verify(jobRepository, never()).save(any());
+        verify(lockContentionProfiler, never()).recordHold(anyLong(), anyLong());
+        verify(jobChunkService, never()).processChunks(any(), any(), any());
         inOrder.verify(lock, never()).unlock();
     }
 
@@ -279,6 +565,8 @@ class JobServiceTest {
         job.setName(NAME);
         job.setStartDate(START_DATE);
         job.setEndDate(END_DATE);
+        job.setRunAt(RUN_AT);
+        job.setChunkCount(CHUNK_COUNT);
         job.setStatus(STATUS);
         return job;
     }
@@ -289,6 +577,8 @@ class JobServiceTest {
         assertEquals(NAME, job.getName());
         assertEquals(START_DATE, job.getStartDate());
         assertEquals(END_DATE, job.getEndDate());
+        assertEquals(RUN_AT, job.getRunAt());
+        assertEquals(CHUNK_COUNT, job.getChunkCount());
         assertEquals(STATUS, job.getStatus());
     }
 }
@@ -0,0 +1,193 @@
+package com.jonathanfoucher.redislockexample.services;
+
+import com.jonathanfoucher.redislockexample.data.dto.ContendedKeyDto;
+import com.jonathanfoucher.redislockexample.data.dto.LockContentionReportDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.jonathanfoucher.redislockexample.data.enums.LockWaitOutcome.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockContentionProfilerTest {
+    private static final int RELEASE_TIME_DURATION = 30;
+    private static final long CONTENTION_THRESHOLD_MILLIS = 100;
+    private static final int TOP_K_CAPACITY = 3;
+    private static final int REPORT_SIZE = 2;
+
+    private final LockContentionProfiler lockContentionProfiler = new LockContentionProfiler(
+            RELEASE_TIME_DURATION, CONTENTION_THRESHOLD_MILLIS, TOP_K_CAPACITY, REPORT_SIZE
+    );
+
+    @Test
+    void reportWithoutRecords() {
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(30_000, report.getLeaseMillis());
+        assertEquals(CONTENTION_THRESHOLD_MILLIS, report.getContentionThresholdMillis());
+        assertEquals(0, report.getTimeouts());
+        assertEquals(0, report.getLockErrors());
+        assertEquals(0, report.getLeaseOverruns());
+        assertEquals(0, report.getWait().getCount());
+        assertEquals(0, report.getHold().getCount());
+        assertEquals(0.0, report.getMaxLeaseUsage());
+        assertTrue(report.getContendedJobIds().isEmpty());
+        assertTrue(report.getContendedJobNames().isEmpty());
+    }
+
+    @Test
+    void reportContendedKeys() {
+        // GIVEN
+        lockContentionProfiler.recordWait(1L, "JOB_A", millis(5), ACQUIRED);
+        lockContentionProfiler.recordWait(2L, "JOB_A", millis(150), ACQUIRED);
+        lockContentionProfiler.recordWait(2L, "JOB_A", millis(60_000), TIMED_OUT);
+        lockContentionProfiler.recordWait(2L, "JOB_A", millis(200), ACQUIRED);
+        lockContentionProfiler.recordWait(3L, "JOB_B", millis(300), ACQUIRED);
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(1, report.getTimeouts());
+        assertEquals(5, report.getWait().getCount());
+        assertEquals(60_000, report.getWait().getMaxMillis(), 60_000 * 0.01);
+
+        List<ContendedKeyDto> jobIds = report.getContendedJobIds();
+        assertEquals(REPORT_SIZE, jobIds.size());
+        checkContendedKey(jobIds.get(0), "2", 3, 0);
+        checkContendedKey(jobIds.get(1), "3", 1, 0);
+
+        List<ContendedKeyDto> jobNames = report.getContendedJobNames();
+        assertEquals(REPORT_SIZE, jobNames.size());
+        checkContendedKey(jobNames.get(0), "JOB_A", 3, 0);
+        checkContendedKey(jobNames.get(1), "JOB_B", 1, 0);
+    }
+
+    @Test
+    void reportContendedKeysWithEviction() {
+        // GIVEN
+        lockContentionProfiler.recordWait(1L, "JOB", millis(100), ACQUIRED);
+        lockContentionProfiler.recordWait(1L, "JOB", millis(100), ACQUIRED);
+        lockContentionProfiler.recordWait(1L, "JOB", millis(100), ACQUIRED);
+        lockContentionProfiler.recordWait(2L, "JOB", millis(100), ACQUIRED);
+        lockContentionProfiler.recordWait(3L, "JOB", millis(100), ACQUIRED);
+        lockContentionProfiler.recordWait(4L, "JOB", millis(100), ACQUIRED);
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        List<ContendedKeyDto> jobIds = report.getContendedJobIds();
+        assertEquals(REPORT_SIZE, jobIds.size());
+        checkContendedKey(jobIds.get(0), "1", 3, 0);
+        checkContendedKey(jobIds.get(1), "4", 2, 1);
+    }
+
+    @Test
+    void reportLockErrors() {
+        // GIVEN
+        lockContentionProfiler.recordWait(1L, "JOB", millis(2_000), FAILED);
+        lockContentionProfiler.recordWait(2L, "JOB", millis(2_000), FAILED);
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(2, report.getLockErrors());
+        assertEquals(0, report.getTimeouts());
+        assertEquals(2, report.getWait().getCount());
+        assertTrue(report.getContendedJobIds().isEmpty());
+        assertTrue(report.getContendedJobNames().isEmpty());
+    }
+
+    @Test
+    void reportInFlightStarts() {
+        // GIVEN
+        lockContentionProfiler.startEntered();
+        lockContentionProfiler.startEntered();
+        lockContentionProfiler.startEntered();
+        lockContentionProfiler.startExited();
+        lockContentionProfiler.startExited();
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(1, report.getInFlightStarts());
+        assertEquals(3, report.getPeakInFlightStarts());
+    }
+
+    @Test
+    void reportHoldAgainstLease() {
+        // GIVEN
+        lockContentionProfiler.recordHold(millis(10_000), millis(10_000));
+        lockContentionProfiler.recordHold(millis(15_000), millis(15_000));
+        lockContentionProfiler.recordHold(millis(45_000), millis(45_000));
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(3, report.getHold().getCount());
+        assertEquals(3, report.getUnrenewedHold().getCount());
+        assertEquals(1, report.getLeaseOverruns());
+        assertEquals(1.5, report.getMaxLeaseUsage(), 0.02);
+        assertEquals(1.5, report.getP99LeaseUsage(), 0.02);
+    }
+
+    @Test
+    void reportRenewedHoldAgainstLease() {
+        // GIVEN
+        lockContentionProfiler.recordHold(millis(90_000), millis(10_000));
+        lockContentionProfiler.recordHold(millis(120_000), millis(12_000));
+
+        // WHEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+
+        // THEN
+        assertEquals(120_000, report.getHold().getMaxMillis(), 120_000 * 0.01);
+        assertEquals(0, report.getLeaseOverruns());
+        assertEquals(0.4, report.getMaxLeaseUsage(), 0.01);
+    }
+
+    @Test
+    void reset() {
+        // GIVEN
+        lockContentionProfiler.recordWait(1L, "JOB", millis(60_000), TIMED_OUT);
+        lockContentionProfiler.recordWait(1L, "JOB", millis(2_000), FAILED);
+        lockContentionProfiler.recordHold(millis(45_000), millis(45_000));
+        lockContentionProfiler.startEntered();
+        lockContentionProfiler.startEntered();
+        lockContentionProfiler.startExited();
+
+        // WHEN
+        lockContentionProfiler.reset();
+
+        // THEN
+        LockContentionReportDto report = lockContentionProfiler.report();
+        assertEquals(0, report.getTimeouts());
+        assertEquals(0, report.getLockErrors());
+        assertEquals(0, report.getLeaseOverruns());
+        assertEquals(0, report.getWait().getCount());
+        assertEquals(0, report.getHold().getCount());
+        assertEquals(0, report.getUnrenewedHold().getCount());
+        assertEquals(1, report.getInFlightStarts());
+        assertEquals(1, report.getPeakInFlightStarts());
+        assertTrue(report.getContendedJobIds().isEmpty());
+        assertTrue(report.getContendedJobNames().isEmpty());
+    }
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+
+    private void checkContendedKey(ContendedKeyDto contendedKey, String key, long count, long error) {
+        assertNotNull(contendedKey);
+        assertEquals(key, contendedKey.getKey());
+        assertEquals(count, contendedKey.getCount());
+        assertEquals(error, contendedKey.getError());
+    }
+}